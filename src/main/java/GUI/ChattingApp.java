@@ -1,8 +1,7 @@
 package GUI;
 
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.io.IOException;
@@ -13,16 +12,38 @@ import java.io.IOException;
  * The Server the user logs in is protexted via a Password and the user gets to choose their nickname
  */
 public class ChattingApp extends Application {
+    /**
+     * Shows the cached login scene on the primary stage, which is reused for the chat window,
+     * and starts preloading the chat scene in the background while the user logs in.
+     */
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(ChattingApp.class.
-                getResource("/fxmlFiles/Login.fxml"));
-        Scene scene = new Scene(fxmlLoader.load());
-        scene.getStylesheets().add(getClass().getResource("/cssFiles/style.css").toExternalForm());
+        SceneCache.CachedScene<LoginController> login = SceneCache.login();
+        StartupMetrics.loginShown(login.scene());
         stage.setTitle("Chatting Application");
-        stage.setScene(scene);
+        stage.setScene(login.scene());
         stage.setResizable(false);
         stage.show();
+
+        SceneCache.preloadChat();
+        if (StartupMetrics.EXIT_AFTER_STARTUP)
+            SceneCache.preloadChat().thenRun(() -> Platform.runLater(() -> showChatAndExit(stage)));
+    }
+
+    /**
+     * Used when measuring startup: shows the preloaded chat scene without a connection
+     * and exits once it has been rendered.
+     */
+    private void showChatAndExit(Stage stage) {
+        try {
+            SceneCache.CachedScene<ChattingAppController> chat = SceneCache.chat();
+            StartupMetrics.chatShown(chat.scene());
+            stage.setScene(chat.scene());
+            stage.sizeToScene();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Platform.exit();
+        }
     }
 
     public static void main(String[] args) {
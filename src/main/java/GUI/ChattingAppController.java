@@ -1,15 +1,22 @@
 package GUI;
 
 import Networking.Client;
+import Networking.FileTransferClient;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class ChattingAppController{
 
@@ -28,8 +35,22 @@ public class ChattingAppController{
     @FXML
     private MenuBar leaveMenu;
 
+    @FXML
+    private Button attachButton;
+
+    @FXML
+    private ListView<String> memberList;
+
+    @FXML
+    private Label typingLabel;
+
     private Client client;
     String nickname = "";
+    String password = "";
+    // Id of the last attachment referenced in the chat, offered as default for downloads
+    private String lastAttachmentId;
+    // Presence state per nickname, kept sorted for the member list
+    private final Map<String, String> members = new TreeMap<>();
 
     /**
      * Initializes the chat UI settings and interaction behaviors for the chat application.
@@ -38,6 +59,23 @@ public class ChattingAppController{
     public void initialize() {
         messageWindow.setEditable(false);
         messageInput.setOnAction(e -> sendButton.fire());
+        messageInput.textProperty().addListener((observable, oldText, newText) -> {
+            if (client != null && !newText.isBlank())
+                client.sendTyping();
+        });
+    }
+
+    /**
+     * Clears the chat view so the cached scene can be reused for the next session.
+     */
+    void reset() {
+        messageWindow.clear();
+        messageInput.clear();
+        attachButton.setDisable(false);
+        lastAttachmentId = null;
+        members.clear();
+        memberList.getItems().clear();
+        typingLabel.setText("");
     }
 
     /**
@@ -70,8 +108,47 @@ public class ChattingAppController{
     public void setClient(Client client) {
         this.client = client;
 
-        client.setMessageListener(message -> Platform.runLater(()
-                -> messageWindow.appendText(message + "\n")));
+        client.setMessageListener(message -> Platform.runLater(() -> {
+            String attachmentId = FileTransferClient.parseReference(message);
+            if (attachmentId != null)
+                lastAttachmentId = attachmentId;
+            messageWindow.appendText(message + "\n");
+        }));
+        client.setGapListener((from, to) -> Platform.runLater(()
+                -> messageWindow.appendText("[" + (to - from + 1) + " message(s) missed]\n\n")));
+        client.setPresenceListener((states, snapshot) -> Platform.runLater(() -> updatePresence(states)));
+        client.requestPresenceSnapshot();
+    }
+
+    /**
+     * Applies presence changes received from the server to the member list and the typing indicator.
+     * Updates arrive coalesced at a fixed rate, so the list is rebuilt at most a few times per second.
+     *
+     * @param states the changed states by nickname, OFFLINE members are removed
+     */
+    private void updatePresence(Map<String, String> states) {
+        states.forEach((name, state) -> {
+            if (state.equals("OFFLINE"))
+                members.remove(name);
+            else
+                members.put(name, state);
+        });
+
+        List<String> items = new ArrayList<>(members.size());
+        List<String> typing = new ArrayList<>();
+        members.forEach((name, state) -> {
+            items.add(state.equals("AWAY") ? name + " (away)" : name);
+            if (state.equals("TYPING") && !name.equals(nickname))
+                typing.add(name);
+        });
+        memberList.getItems().setAll(items);
+
+        if (typing.isEmpty())
+            typingLabel.setText("");
+        else if (typing.size() <= 3)
+            typingLabel.setText(String.join(", ", typing) + (typing.size() == 1 ? " is typing..." : " are typing..."));
+        else
+            typingLabel.setText(typing.size() + " people are typing...");
     }
 
     /**
@@ -83,29 +160,121 @@ public class ChattingAppController{
         Platform.runLater(() -> infoLabel.setText("Connected as " + nickname + " on Port 1234"));
     }
 
+    @FXML
+    void setAway(ActionEvent event) {
+        client.setAway(true);
+    }
 
+    @FXML
+    void setOnline(ActionEvent event) {
+        client.setAway(false);
+    }
+
+    /**
+     * Sets the server password, which is needed to authorize attachment transfers
+     * @param password the password the user logged in with
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Lets the user pick a file and uploads it on a background thread through the separate
+     * file transfer connection. Once stored on the server, only a reference to the attachment
+     * is sent through the chat.
+     *
+     * @param event
+     */
+    @FXML
+    void attach(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Attach File");
+        File file = chooser.showOpenDialog(attachButton.getScene().getWindow());
+        if (file == null)
+            return;
+
+        attachButton.setDisable(true);
+        Thread uploadThread = new Thread(() -> {
+            try {
+                Path path = file.toPath();
+                long size = Files.size(path);
+                String id = transferClient().upload(path);
+                client.sendMessage(nickname + ": " + FileTransferClient.reference(file.getName(), size, id));
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> messageWindow.appendText("Upload of " + file.getName() + " failed: "
+                        + e.getMessage() + "\n\n"));
+            } finally {
+                Platform.runLater(() -> attachButton.setDisable(false));
+            }
+        });
+        uploadThread.setDaemon(true);
+        uploadThread.start();
+    }
+
+    /**
+     * Asks for the reference of an attachment, defaulting to the last one shared in the chat,
+     * and downloads it on a background thread into a file chosen by the user.
+     *
+     * @param event
+     */
+    @FXML
+    void download(ActionEvent event) {
+        TextInputDialog dialog = new TextInputDialog(lastAttachmentId == null ? "" : lastAttachmentId);
+        dialog.setTitle("Download Attachment");
+        dialog.setHeaderText("Enter the attachment reference");
+        String id = dialog.showAndWait().map(String::trim).orElse("");
+        if (id.isEmpty())
+            return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Attachment");
+        File target = chooser.showSaveDialog(leaveMenu.getScene().getWindow());
+        if (target == null)
+            return;
+
+        Thread downloadThread = new Thread(() -> {
+            try {
+                long size = transferClient().download(id, target.toPath());
+                Platform.runLater(() -> messageWindow.appendText("Downloaded " + target.getName()
+                        + " (" + size / 1024 + " KB)\n\n"));
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> messageWindow.appendText("Download of " + id + " failed\n\n"));
+            }
+        });
+        downloadThread.setDaemon(true);
+        downloadThread.start();
+    }
+
+    private FileTransferClient transferClient() {
+        return new FileTransferClient("localhost", FileTransferClient.TRANSFER_PORT, password);
+    }
+
+    /**
+     * Leaves the chat and switches the current stage back to the cached login scene.
+     * The client's listeners are detached so a later session can reuse this controller, and its
+     * connection is closed so the server frees the nickname and shows the user as offline.
+     *
+     * @param event
+     */
     @FXML
     void close(ActionEvent event) {
         System.out.println("Closing client");
 
-        client.running.set(false);
+        client.setMessageListener(null);
+        client.setGapListener(null);
+        client.setPresenceListener(null);
+        client.close();
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxmlFiles/Login.fxml"));
-            javafx.scene.Parent root = loader.load();
-            LoginController controller = loader.getController();
-            controller.initialize();
-
-            Scene scene = new Scene(root);
-            scene.getStylesheets().add(getClass().getResource("/cssFiles/style.css").toExternalForm());
+            SceneCache.CachedScene<LoginController> login = SceneCache.login();
+            login.controller().reset();
 
-            Stage stage = new Stage();
+            Stage stage = (Stage) leaveMenu.getScene().getWindow();
             stage.setTitle("Chatting Application");
-            stage.setScene(scene);
-            stage.setResizable(false);
-            stage.show();
-
-            ((Stage) leaveMenu.getScene().getWindow()).close();
+            stage.setScene(login.scene());
+            stage.sizeToScene();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -115,4 +284,4 @@ public class ChattingAppController{
 
 
 
-}
\ No newline at end of file
+}
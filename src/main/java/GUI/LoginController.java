@@ -4,9 +4,6 @@ import Networking.Client;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
@@ -42,6 +39,15 @@ public class LoginController {
         usernameField.setOnAction(e -> connectButton.fire());
     }
 
+    /**
+     * Resets the login view so the cached scene can be shown again after leaving a chat.
+     */
+    void reset() {
+        errorField.clear();
+        passwordField.clear();
+        client = null;
+    }
+
     /**
      * Handles the connection process when the "Connect" button is clicked.
      * Validates the user input, initializes the client connection,
@@ -55,7 +61,8 @@ public class LoginController {
         username = usernameField.getText().trim();
         password = passwordField.getText().trim();
 
-        if (username.isEmpty() || username.length() > 15 || username.contains(":")) {
+        if (username.isEmpty() || username.length() > 15 || username.contains(":")
+                || username.contains(",") || username.contains("=")) {
             errorField.setText("Invalid username");
             return;
         }
@@ -65,6 +72,7 @@ public class LoginController {
             return;
         }
 
+        StartupMetrics.connectStarted();
         client = new Client(
                 message -> Platform.runLater(() -> {
                     switch (message) {
@@ -77,6 +85,12 @@ public class LoginController {
                         case "LOGIN_FAILED":
                             errorField.setText("Invalid credentials");
                             break;
+                        case "NICKNAME_INVALID":
+                            errorField.setText("Invalid username");
+                            break;
+                        case "NICKNAME_TAKEN":
+                            errorField.setText("Username is already taken");
+                            break;
                     }
                 }),
                 error -> Platform.runLater(() -> {
@@ -99,32 +113,25 @@ public class LoginController {
     }
 
     /**
-     * Opens the chat window for the user by loading the Chatting.fxml interface and initializing
-     * necessary settings, such as attaching the client and username to the ChattingAppController instance.
-     * This method also applies a custom stylesheet to the scene and transitions from the current login window
-     * to the chat window.
+     * Opens the chat window for the user by switching the current stage to the cached chat scene,
+     * which has usually been preloaded in the background while the login screen was showing,
+     * and attaching the client and username to its ChattingAppController instance.
      */
     private void openChatWindow() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxmlFiles/Chatting.fxml"));
-            Parent root = loader.load();
+            SceneCache.CachedScene<ChattingAppController> chat = SceneCache.chat();
 
-            ChattingAppController controller = loader.getController();
+            ChattingAppController controller = chat.controller();
+            controller.reset();
             controller.setClient(client);
             controller.setNickname(username);
+            controller.setPassword(password);
 
-            Scene scene = new Scene(root);
-
-            scene.getStylesheets().add(getClass().getResource("/cssFiles/style.css").toExternalForm());
-
-            Stage stage = new Stage();
+            StartupMetrics.chatShown(chat.scene());
+            Stage stage = (Stage) connectButton.getScene().getWindow();
             stage.setTitle("Chat Room");
-            stage.setScene(scene);
-            stage.setResizable(false);
-            stage.show();
-
-            Stage currentStage = (Stage) connectButton.getScene().getWindow();
-            currentStage.close();
+            stage.setScene(chat.scene());
+            stage.sizeToScene();
 
         } catch (IOException e) {
             errorField.setText("Error loading chat window");
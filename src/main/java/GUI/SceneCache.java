@@ -0,0 +1,100 @@
+package GUI;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * SceneCache loads the Login and Chatting scenes once and hands out the same instances every
+ * time the user switches views, instead of parsing the FXML and stylesheet again and opening
+ * a new Stage. The chat scene is loaded on a background thread while the login screen is showing.
+ * All methods except {@link #preloadChat()} must be called on the JavaFX application thread.
+ */
+final class SceneCache {
+
+    /**
+     * A loaded scene together with the controller created for it by the FXMLLoader.
+     */
+    record CachedScene<T>(Scene scene, T controller) {}
+
+    private static String stylesheet;
+    private static CachedScene<LoginController> login;
+    private static CachedScene<ChattingAppController> chat;
+    private static CompletableFuture<FXMLLoader> chatPreload;
+
+    private SceneCache() {}
+
+    /**
+     * @return the cached login scene, loaded on first use
+     */
+    static CachedScene<LoginController> login() throws IOException {
+        if (login == null)
+            login = toScene(load("/fxmlFiles/Login.fxml"));
+        return login;
+    }
+
+    /**
+     * @return the cached chat scene, waiting for the background preload if it is still running
+     */
+    static CachedScene<ChattingAppController> chat() throws IOException {
+        if (chat == null) {
+            try {
+                chat = toScene(preloadChat().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading chat window", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error loading chat window", e.getCause());
+            }
+        }
+        return chat;
+    }
+
+    /**
+     * Starts loading the chat FXML on a background thread, if it is not loaded already.
+     * FXML nodes may be built off the application thread as long as they are not part of a
+     * showing window, only the Scene itself is created later on the application thread.
+     *
+     * @return a future completing with the loader once the FXML is parsed
+     */
+    static synchronized CompletableFuture<FXMLLoader> preloadChat() {
+        if (chatPreload == null) {
+            chatPreload = new CompletableFuture<>();
+            Thread preloadThread = new Thread(() -> {
+                try {
+                    chatPreload.complete(load("/fxmlFiles/Chatting.fxml"));
+                    StartupMetrics.chatPreloaded();
+                } catch (Throwable e) {
+                    chatPreload.completeExceptionally(e);
+                }
+            }, "chat-preload");
+            preloadThread.setDaemon(true);
+            preloadThread.start();
+        }
+        return chatPreload;
+    }
+
+    private static FXMLLoader load(String fxml) throws IOException {
+        FXMLLoader loader = new FXMLLoader(SceneCache.class.getResource(fxml));
+        loader.load();
+        return loader;
+    }
+
+    private static <T> CachedScene<T> toScene(FXMLLoader loader) {
+        assert Platform.isFxApplicationThread();
+        Scene scene = new Scene(loader.<Parent>getRoot());
+        scene.getStylesheets().add(stylesheet());
+        return new CachedScene<>(scene, loader.getController());
+    }
+
+    private static String stylesheet() {
+        if (stylesheet == null)
+            stylesheet = SceneCache.class.getResource("/cssFiles/style.css").toExternalForm();
+        return stylesheet;
+    }
+}
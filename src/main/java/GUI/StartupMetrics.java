@@ -0,0 +1,84 @@
+package GUI;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * StartupMetrics prints how long the client takes until the login screen renders its first frame
+ * and until the chat window is shown. When the system property "chattingapp.exitAfterStartup" is set,
+ * the application additionally switches to the preloaded chat scene and exits once it has been rendered.
+ * This mode is used for the AppCDS training run and by the startup benchmark.
+ */
+final class StartupMetrics {
+
+    static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("chattingapp.exitAfterStartup");
+
+    private static final Instant LAUNCH = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+    private static volatile long connectStarted;
+    // Only the first switch to the chat window belongs to startup, later logins reuse the cached scene
+    private static boolean chatWindowMeasured;
+
+    private StartupMetrics() {}
+
+    /**
+     * Prints the time since launch once the login scene has rendered its first frame.
+     */
+    static void loginShown(Scene scene) {
+        onFirstPulse(scene, () -> System.out.println("Startup: first frame after " + sinceLaunch() + " ms"));
+    }
+
+    /**
+     * Called from the preload thread once the chat FXML has been parsed.
+     */
+    static void chatPreloaded() {
+        System.out.println("Startup: chat scene preloaded after " + sinceLaunch() + " ms");
+    }
+
+    /**
+     * Marks the moment the user pressed connect, as long as the chat window has not been measured yet.
+     */
+    static void connectStarted() {
+        if (!chatWindowMeasured)
+            connectStarted = System.nanoTime();
+    }
+
+    /**
+     * Prints the time until the chat window has rendered its first frame, measured from launch
+     * and from pressing connect. Only the first chat window of the process is measured.
+     * Exits the application if it runs in startup measuring mode.
+     */
+    static void chatShown(Scene scene) {
+        if (chatWindowMeasured)
+            return;
+        chatWindowMeasured = true;
+        onFirstPulse(scene, () -> {
+            String sinceConnect = connectStarted == 0 ? ""
+                    : ", " + (System.nanoTime() - connectStarted) / 1_000_000 + " ms after connect";
+            System.out.println("Startup: chat window after " + sinceLaunch() + " ms" + sinceConnect);
+            connectStarted = 0;
+            if (EXIT_AFTER_STARTUP)
+                Platform.exit();
+        });
+    }
+
+    private static long sinceLaunch() {
+        return Duration.between(LAUNCH, Instant.now()).toMillis();
+    }
+
+    private static void onFirstPulse(Scene scene, Runnable action) {
+        Runnable[] listener = new Runnable[1];
+        boolean[] done = new boolean[1];
+        listener[0] = () -> {
+            if (done[0])
+                return;
+            done[0] = true;
+            // the listener list must not be modified while the pulse iterates over it
+            Platform.runLater(() -> scene.removePostLayoutPulseListener(listener[0]));
+            action.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+}
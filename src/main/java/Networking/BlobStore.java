@@ -0,0 +1,68 @@
+package Networking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * BlobStore keeps uploaded attachments as files in a local directory on the server.
+ * Uploads are first written to a temporary file and only become visible under their id
+ * once they are complete, so a download never sees a half written attachment.
+ */
+public class BlobStore {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f\\-]{36}");
+
+    private final Path directory;
+
+    /**
+     * Constructs a new BlobStore that stores its attachments inside the given directory.
+     * The directory is created if it does not exist yet.
+     *
+     * @param directory the directory holding the attachments
+     * @throws IOException if the directory cannot be created
+     */
+    public BlobStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Creates the temporary file an upload is written to before it is committed.
+     *
+     * @return the path of the new temporary file
+     * @throws IOException if the file cannot be created
+     */
+    Path createUploadFile() throws IOException {
+        return Files.createTempFile(directory, "upload-", ".part");
+    }
+
+    /**
+     * Moves a completed upload into the store and assigns it a new id.
+     *
+     * @param uploadFile the temporary file returned by {@link #createUploadFile()}
+     * @return the id under which the attachment can be downloaded
+     * @throws IOException if the file cannot be moved
+     */
+    String commit(Path uploadFile) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Files.move(uploadFile, directory.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+        return id;
+    }
+
+    /**
+     * Resolves the file of a stored attachment.
+     *
+     * @param id the id of the attachment
+     * @return the path of the attachment, or null if the id is invalid or unknown
+     */
+    Path resolve(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches())
+            return null;
+        Path file = directory.resolve(id);
+        return Files.isRegularFile(file) ? file : null;
+    }
+}
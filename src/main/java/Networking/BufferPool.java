@@ -0,0 +1,101 @@
+package Networking;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BufferPool shares direct byte buffers between all client connections. A connection borrows a
+ * buffer only while a read or write is in progress and returns it afterwards, so idle connections
+ * hold no I/O buffers at all. At most {@code maxPooled} free buffers are kept, buffers returned
+ * beyond that are left to the garbage collector.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * Constructs a new BufferPool.
+     *
+     * @param bufferSize the capacity of every buffer in bytes
+     * @param maxPooled  the maximum number of free buffers kept for reuse
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Borrows a cleared direct buffer, allocating a new one if none is free.
+     *
+     * @return a buffer which must be handed back with {@link #release(ByteBuffer)}
+     */
+    ByteBuffer acquire() {
+        inUse.incrementAndGet();
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            freeCount.decrementAndGet();
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a borrowed buffer to the pool.
+     *
+     * @param buffer the buffer obtained from {@link #acquire()}
+     */
+    void release(ByteBuffer buffer) {
+        inUse.decrementAndGet();
+        buffer.clear();
+        if (freeCount.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            freeCount.decrementAndGet();
+            discarded.increment();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getFree() {
+        return freeCount.get();
+    }
+
+    /**
+     * @return the direct memory held by the pool in bytes, counting borrowed and free buffers
+     */
+    public long getFootprintBytes() {
+        return (long) (getInUse() + getFree()) * bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return "Buffer pool: " + getInUse() + " in use, " + getFree() + " free, "
+                + getFootprintBytes() / 1024 + " KB direct memory, hit rate "
+                + (total == 0 ? 0 : hits * 100 / total) + "% (" + hits + " hits, " + getMisses() + " misses, "
+                + discarded.sum() + " discarded)";
+    }
+}
@@ -2,7 +2,12 @@ package Networking;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Client implements Runnable {
@@ -20,9 +25,17 @@ public class Client implements Runnable {
      */
     public interface MessageListener {
         void onMessageReceived(String message);
+
+        /**
+         * Called for broadcast messages, in server order. Defaults to {@link #onMessageReceived(String)}.
+         */
+        default void onSequencedMessage(long sequence, long timestamp, String message) {
+            onMessageReceived(message);
+        }
     }
 
-    private MessageListener messageListener;
+    // Listeners are replaced from the UI thread, read each one once before calling it
+    private volatile MessageListener messageListener;
 
     /**
      * A callback interface for handling connection errors that occur during the operation of a client.
@@ -31,7 +44,49 @@ public class Client implements Runnable {
         void onConnectionError(Exception e);
     }
 
-    private ConnectionErrorListener errorListener;
+    private final ConnectionErrorListener errorListener;
+
+    /**
+     * A callback interface notified when broadcast messages were lost, identified by their sequence numbers.
+     */
+    public interface GapListener {
+        void onGap(long fromSequence, long toSequence);
+    }
+
+    private volatile GapListener gapListener;
+
+    /**
+     * A callback interface receiving presence changes as a map from nickname to state
+     * (ONLINE, AWAY, TYPING or OFFLINE). Snapshot pages describe members already present when joining.
+     */
+    public interface PresenceListener {
+        void onPresenceUpdate(Map<String, String> states, boolean snapshot);
+    }
+
+    private volatile PresenceListener presenceListener;
+
+    // Typing notifications are sent at most once per interval, the server keeps them alive meanwhile
+    static final long TYPING_INTERVAL_MILLIS = 2000;
+    private volatile long lastTypingSent;
+
+    static final String LOGIN_SUCCESS = "LOGIN_SUCCESS";
+
+    // Delivers messages held back by the reorder buffer if the missing message never arrives
+    private ScheduledExecutorService reorderTimer;
+    static final long REORDER_CHECK_MILLIS = 250;
+
+    private final MessageReorderBuffer reorderBuffer = new MessageReorderBuffer(
+            (sequence, timestamp, message) -> {
+                MessageListener listener = messageListener;
+                if (listener != null)
+                    listener.onSequencedMessage(sequence, timestamp, message);
+            },
+            (from, to) -> {
+                System.out.println("Missed messages " + from + " to " + to);
+                GapListener listener = gapListener;
+                if (listener != null)
+                    listener.onGap(from, to);
+            });
 
     /**
      * Constructs a new Client instance with the provided message listener and error listener.
@@ -45,6 +100,14 @@ public class Client implements Runnable {
         this.messageListener = messageListener;
     }
 
+    public void setGapListener(GapListener gapListener) {
+        this.gapListener = gapListener;
+    }
+
+    public void setPresenceListener(PresenceListener presenceListener) {
+        this.presenceListener = presenceListener;
+    }
+
     /**
      * Executes the main logic of the client in a separate thread.
      * Establishes a connection to a server, listens for incoming messages,
@@ -62,14 +125,29 @@ public class Client implements Runnable {
             bufferedReader = new BufferedReader(inputStreamReader);
             bufferedWriter = new BufferedWriter(outputStreamWriter);
 
+            reorderTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reorder-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reorderTimer.scheduleAtFixedRate(reorderBuffer::flushExpired,
+                    REORDER_CHECK_MILLIS, REORDER_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+
             String message;
             while(running.get() && (message = bufferedReader.readLine()) != null) {
-                if(messageListener != null)
-                    messageListener.onMessageReceived(message);
+                if(message.startsWith("MSG:"))
+                    readSequencedMessage(message);
+                else if(message.startsWith("PRESENCE"))
+                    handlePresence(message);
+                else if(message.startsWith(LOGIN_SUCCESS + ":"))
+                    handleLoginSuccess(message);
+                else
+                    notifyMessage(message);
             }
         }
         catch (Exception e){
-            if (errorListener != null)
+            // a connection closed through close() is not an error
+            if (running.get() && errorListener != null)
                 errorListener.onConnectionError(e);
             e.printStackTrace();
             System.out.println("Error while client was running");
@@ -80,11 +158,105 @@ public class Client implements Runnable {
         }
     }
 
+    /**
+     * Starts the reorder buffer from the sequence number sent with the login reply
+     * "LOGIN_SUCCESS:&lt;sequence&gt;" and passes the plain login reply on to the message listener.
+     *
+     * @param message the login reply
+     */
+    private void handleLoginSuccess(String message) {
+        reorderBuffer.start(Long.parseLong(message.substring(LOGIN_SUCCESS.length() + 1)));
+        notifyMessage(LOGIN_SUCCESS);
+    }
+
+    private void notifyMessage(String message) {
+        MessageListener listener = messageListener;
+        if (listener != null)
+            listener.onMessageReceived(message);
+    }
+
+    /**
+     * Reads a broadcast message announced by a header line of the form
+     * "MSG:&lt;sequence&gt;:&lt;timestamp&gt;:&lt;lineCount&gt;" and hands it to the reorder buffer,
+     * which delivers it to the message listener once all earlier messages have arrived.
+     *
+     * @param header the header line preceding the message lines
+     * @throws IOException if the message lines cannot be read
+     */
+    private void readSequencedMessage(String header) throws IOException {
+        String[] parts = header.split(":");
+        long sequence = Long.parseLong(parts[1]);
+        long timestamp = Long.parseLong(parts[2]);
+        int lineCount = Integer.parseInt(parts[3]);
+
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            String line = bufferedReader.readLine();
+            if (line == null)
+                throw new EOFException("Connection closed inside message " + sequence);
+            if (i > 0)
+                message.append('\n');
+            message.append(line);
+        }
+        reorderBuffer.add(sequence, timestamp, message.toString());
+    }
+
+    /**
+     * Parses a presence line of the form "PRESENCE:name=STATE,..." or "PRESENCE_SNAPSHOT:name=STATE,..."
+     * and hands the contained states to the presence listener.
+     *
+     * @param line the presence line received from the server
+     */
+    private void handlePresence(String line) {
+        boolean snapshot = line.startsWith("PRESENCE_SNAPSHOT:");
+        String entries = line.substring(line.indexOf(':') + 1);
+
+        Map<String, String> states = new LinkedHashMap<>();
+        for (String entry : entries.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator > 0)
+                states.put(entry.substring(0, separator), entry.substring(separator + 1));
+        }
+        PresenceListener listener = presenceListener;
+        if (listener != null && !states.isEmpty())
+            listener.onPresenceUpdate(states, snapshot);
+    }
+
+    /**
+     * Asks the server for the current member list, which is then delivered to the presence listener
+     * as snapshot pages. Call this after {@link #setPresenceListener(PresenceListener)}, so no page
+     * arrives before the listener is attached.
+     */
+    public void requestPresenceSnapshot() {
+        sendMessage("PRESENCE:SNAPSHOT");
+    }
+
+    /**
+     * Tells the server that the user is typing. Calls are rate limited, so this can be invoked on every keystroke.
+     */
+    public void sendTyping() {
+        long now = System.currentTimeMillis();
+        if (now - lastTypingSent < TYPING_INTERVAL_MILLIS)
+            return;
+        lastTypingSent = now;
+        sendMessage("PRESENCE:TYPING");
+    }
+
+    /**
+     * Sets the away status of the user.
+     * @param away true to show the user as away, false to show them as online
+     */
+    public void setAway(boolean away) {
+        sendMessage(away ? "PRESENCE:AWAY" : "PRESENCE:ONLINE");
+    }
+
     /**
      * Sends a message to the connected server using the current buffered writer.
      * @param message the string message to be sent to the server
      */
-    public void sendMessage(String message){
+    public synchronized void sendMessage(String message){
+        if (!message.startsWith("PRESENCE:"))
+            lastTypingSent = 0;
         try {
             bufferedWriter.write(message);
             bufferedWriter.newLine();
@@ -96,15 +268,25 @@ public class Client implements Runnable {
         }
     }
 
+    /**
+     * Closes the connection to the server, so the server removes the user from the member list
+     * and releases the nickname right away.
+     */
+    public void close() {
+        terminate();
+    }
+
     /**
      * Terminates the client's operation by closing all resources and stopping its execution.
      */
     private void terminate() {
         running.set(false);
+        if (reorderTimer != null) reorderTimer.shutdownNow();
         try {
+            // the socket first, it unblocks a readLine holding the reader's lock
+            if (socket != null) socket.close();
             if (bufferedReader != null) bufferedReader.close();
             if (bufferedWriter != null) bufferedWriter.close();
-            if (socket != null) socket.close();
         } catch (IOException e) {
             // irrelevant here
         }
@@ -1,7 +1,8 @@
 package Networking;
 
 import java.io.*;
-import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,27 +12,30 @@ import java.util.List;
  * including receiving and sending messages as well as validating login attempts.
  */
 public class ClientHandler implements Runnable{
-    private Socket socket;
-    private BufferedReader reader;
-    private BufferedWriter writer;
+    private SocketChannel channel;
+    private PooledLineReader reader;
+    private PooledLineWriter writer;
     private Server server;
     public String nickname;
+    // Last sequence number the server had assigned when this client was added
+    private long joinSequence;
 
     /**
-     * Constructs a new ClientHandler instance, initializes the socket and corresponding
-     * I/O streams used for communication, and assigns the associated server for
-     * managing client-server interactions.
+     * Constructs a new ClientHandler instance, initializes the line reader and writer
+     * used for communication, and assigns the associated server for managing client-server interactions.
+     * Reader and writer borrow their buffers from the server's {@link BufferPool} only while
+     * a read or write is in progress, so an idle connection holds no I/O buffers.
      *
-     * @param socket the client's socket connection used for communication
-     * @param server the server instance managing this client connection
+     * @param channel the client's socket channel used for communication
+     * @param server  the server instance managing this client connection
      */
-    public ClientHandler(Socket socket, Server server) {
-        this.socket = socket;
+    public ClientHandler(SocketChannel channel, Server server) {
+        this.channel = channel;
         this.server = server;
 
         try {
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            reader = new PooledLineReader(channel, server.getBufferPool(), Charset.defaultCharset());
+            writer = new PooledLineWriter(channel, server.getBufferPool(), Charset.defaultCharset());
         } catch (IOException e) {
             terminate();
         }
@@ -42,9 +46,7 @@ public class ClientHandler implements Runnable{
      */
     private void terminate() {
         try {
-            if (reader != null) reader.close();
-            if (writer != null) writer.close();
-            if (socket != null) socket.close();
+            if (channel != null) channel.close();
         } catch (IOException e) {
             // irrelevant here
         }
@@ -53,28 +55,71 @@ public class ClientHandler implements Runnable{
     List<String> messages = new ArrayList<>();
 
     /**
-     * Sends a message to the connected client. If the message exceeds 90 characters
-     * in length, it is broken into smaller segments to maintain readability.
-     * After processing, all messages are written to the output stream
+     * Sends an unsequenced control message (e.g. login responses) to the connected client.
+     * If the message exceeds 90 characters in length, it is broken into smaller segments
+     * to maintain readability. After processing, all messages are written to the output stream
      *
      * @param message the message to be sent to the client; if longer than 90 characters,
      *                it will be split into multiple parts
      */
-    void sendMessage(String message){
+    synchronized void sendMessage(String message){
+        prepareLines(message);
+        try {
+            writeLines();
+        } catch (IOException e) {
+           System.out.println("Error while sending message");
+        }
+    }
+
+    /**
+     * Sends a broadcast message to the connected client. The message is preceded by a header line
+     * of the form "MSG:&lt;sequence&gt;:&lt;timestamp&gt;:&lt;lineCount&gt;" so the client can reorder
+     * messages by their server sequence number and knows how many lines belong to the message.
+     * Writes are synchronized per client only, broadcasts to different clients run in parallel.
+     *
+     * @param sequence  the server assigned sequence number of the message
+     * @param timestamp the server time in milliseconds when the message was broadcast
+     * @param message   the message to be sent to the client
+     */
+    synchronized void sendMessage(long sequence, long timestamp, String message){
+        prepareLines(message);
+        try {
+            // +1 for the empty line separating messages
+            messages.add(0, "MSG:" + sequence + ":" + timestamp + ":" + (messages.size() + 1));
+            writeLines();
+        } catch (IOException e) {
+           System.out.println("Error while sending message");
+        }
+    }
+
+    /**
+     * Sends a single control line, such as a presence update, to the connected client.
+     * Unlike chat messages it is neither split up nor followed by an empty line.
+     *
+     * @param line the control line to be sent
+     */
+    synchronized void sendControl(String line){
+        try {
+            writer.write(List.of(line));
+        } catch (IOException e) {
+           System.out.println("Error while sending message");
+        }
+    }
+
+    private void prepareLines(String message) {
+        messages.clear();
         if(message.length() > 90){
             cutUpMessage(message);
         }else
             messages.add(message);
+    }
+
+    private void writeLines() throws IOException {
         try {
-            for(String msg : messages){
-                writer.write(msg);
-                writer.newLine();
-            }
-            writer.newLine();
-            writer.flush();
+            messages.add("");
+            writer.write(messages);
+        } finally {
             messages.clear();
-        } catch (IOException e) {
-           System.out.println("Error while sending message");
         }
     }
 
@@ -119,13 +164,30 @@ public class ClientHandler implements Runnable{
                 sendMessage("LOGIN_FAILED");
                 terminate();
                 return;
-            } else {
-                sendMessage("LOGIN_SUCCESS");
             }
+            String username = loginAttempt.split(":")[1];
+            if (!validNickname(username)) {
+                sendMessage("NICKNAME_INVALID");
+                terminate();
+                return;
+            }
+            if (!server.reserveNickname(username)) {
+                sendMessage("NICKNAME_TAKEN");
+                terminate();
+                return;
+            }
+            setNickname(username);
+            sendControl("LOGIN_SUCCESS:" + joinSequence);
+            server.getPresence().join(nickname);
 
             String message;
             while ((message = reader.readLine()) != null) {
+                if (message.startsWith("PRESENCE:")) {
+                    server.getPresence().update(nickname, message.substring("PRESENCE:".length()));
+                    continue;
+                }
                 System.out.println("Received " + message);
+                server.getPresence().stoppedTyping(nickname);
                 server.broadcast(message, this);
             }
 
@@ -159,14 +221,21 @@ public class ClientHandler implements Runnable{
         if (parts.length != 3)
             return false;
 
-        String username = parts[1];
         String password = parts[2];
 
-        boolean valid = server.passwordValid(password);
-        if(valid){
-            setNickname(username);
-            return true;
-        }else return false;
+        return server.passwordValid(password);
+    }
+
+    /**
+     * Checks that a nickname is 1 to 15 characters long and contains none of the characters
+     * used as separators in the protocol (':' in logins, ',' and '=' in presence lines).
+     *
+     * @param name the nickname to be checked
+     * @return true if the nickname can be used, false otherwise
+     */
+    static boolean validNickname(String name) {
+        return !name.isBlank() && name.length() <= 15
+                && name.indexOf(':') < 0 && name.indexOf(',') < 0 && name.indexOf('=') < 0;
     }
 
     /**
@@ -180,4 +249,14 @@ public class ClientHandler implements Runnable{
         server.broadcast("Client " + name + " joined", this);
     }
 
+    /**
+     * Sets the last sequence number assigned before this client was added to the server's clients.
+     * It is sent with the login reply, so the client knows from which message on it receives every broadcast.
+     *
+     * @param sequence the last assigned sequence number
+     */
+    void setJoinSequence(long sequence) {
+        joinSequence = sequence;
+    }
+
 }
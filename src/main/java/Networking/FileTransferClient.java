@@ -0,0 +1,144 @@
+package Networking;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * FileTransferClient uploads and downloads attachments over a connection separate from the chat.
+ * Only a short reference to the uploaded attachment is sent through the chat itself,
+ * see {@link #reference(String, long, String)}.
+ */
+public class FileTransferClient {
+
+    public static final int TRANSFER_PORT = 1235;
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\[file:([0-9a-f\\-]{36})]");
+
+    private final String host;
+    private final int port;
+    private final String password;
+
+    /**
+     * Constructs a new FileTransferClient.
+     *
+     * @param host     the host of the file transfer server
+     * @param port     the port of the file transfer server
+     * @param password the server password
+     */
+    public FileTransferClient(String host, int port, String password) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+    }
+
+    /**
+     * Uploads a file in chunks to the server. Files above the server's size limit are refused
+     * before connecting, as the server would only notice it while the upload is still streaming.
+     *
+     * @param file the file to upload
+     * @return the id of the stored attachment
+     * @throws IOException if the file is too large, the upload fails or is refused by the server
+     */
+    public String upload(Path file) throws IOException {
+        if (Files.size(file) > FileTransferServer.MAX_FILE_SIZE)
+            throw new IOException("File too large, the limit is "
+                    + FileTransferServer.MAX_FILE_SIZE / (1024 * 1024) + " MB");
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+             FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+
+            out.writeUTF("UPLOAD");
+            out.writeUTF(password);
+            out.writeUTF(file.getFileName().toString());
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            while (source.read(chunk) > 0 || chunk.position() > 0) {
+                chunk.flip();
+                out.writeInt(chunk.remaining());
+                while (chunk.hasRemaining())
+                    channel.write(chunk);
+                chunk.clear();
+            }
+            out.writeInt(0);
+
+            String response = in.readUTF();
+            if (!response.startsWith("OK:"))
+                throw new IOException("Upload refused: " + response);
+            return response.substring(3);
+        }
+    }
+
+    /**
+     * Downloads an attachment from the server into the given file.
+     *
+     * @param id     the id of the attachment
+     * @param target the file the attachment is written to
+     * @return the number of bytes downloaded
+     * @throws IOException if the download fails or the attachment is not available
+     */
+    public long download(String id, Path target) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+
+            out.writeUTF("DOWNLOAD");
+            out.writeUTF(password);
+            out.writeUTF(id);
+
+            long size = in.readLong();
+            if (size < 0)
+                throw new FileNotFoundException("Attachment " + id + " not available");
+
+            try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                while (position < size) {
+                    long transferred = file.transferFrom(channel, position, size - position);
+                    if (transferred <= 0)
+                        throw new EOFException("Download interrupted");
+                    position += transferred;
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Builds the chat text referring to an uploaded attachment.
+     *
+     * @param fileName the name of the uploaded file
+     * @param size     the size of the uploaded file in bytes
+     * @param id       the id returned by {@link #upload(Path)}
+     * @return the text to send through the chat
+     */
+    public static String reference(String fileName, long size, String id) {
+        // The reference comes first so it is never split up by the 90 character line limit
+        return "[file:" + id + "] shared " + fileName + " (" + size / 1024 + " KB)";
+    }
+
+    /**
+     * Extracts the attachment id from a chat message.
+     *
+     * @param message the chat message
+     * @return the id of the last referenced attachment, or null if the message contains none
+     */
+    public static String parseReference(String message) {
+        Matcher matcher = REFERENCE_PATTERN.matcher(message);
+        String id = null;
+        while (matcher.find())
+            id = matcher.group(1);
+        return id;
+    }
+}
@@ -0,0 +1,194 @@
+package Networking;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * FileTransferServer accepts attachment uploads and downloads on a port separate from the chat,
+ * so large transfers never delay chat messages. Every connection performs exactly one transfer.
+ *
+ * A request starts with the operation, the server password and its arguments (written with
+ * {@link DataOutputStream#writeUTF(String)}):
+ * <ul>
+ *     <li>UPLOAD, password, file name, followed by chunks of the form &lt;int length&gt;&lt;bytes&gt;
+ *     and a chunk of length 0. The server answers with "OK:&lt;id&gt;" or "ERROR:&lt;reason&gt;",
+ *     a negative chunk length aborts the upload without storing it.</li>
+ *     <li>DOWNLOAD, password, id. The server answers with the file size (-1 if refused)
+ *     followed by the raw file content.</li>
+ * </ul>
+ */
+public class FileTransferServer implements Runnable {
+
+    static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    static final long MAX_FILE_SIZE = 512L * 1024 * 1024;
+
+    private final int port;
+    private final BlobStore blobStore;
+    private final Predicate<String> passwordCheck;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Constructs a new FileTransferServer.
+     *
+     * @param port          the port to listen on, 0 picks a free port
+     * @param blobStore     the store the attachments are kept in
+     * @param passwordCheck validates the server password sent with every request
+     */
+    public FileTransferServer(int port, BlobStore blobStore, Predicate<String> passwordCheck) {
+        this.port = port;
+        this.blobStore = blobStore;
+        this.passwordCheck = passwordCheck;
+    }
+
+    /**
+     * Accepts transfer connections and handles each of them on its own thread.
+     */
+    @Override
+    public void run() {
+        try {
+            bind();
+            System.out.println("File transfer listening on port " + getPort());
+
+            while (running.get()) {
+                SocketChannel channel = serverChannel.accept();
+                Thread thread = new Thread(() -> handle(channel));
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException e) {
+            if (running.get())
+                System.out.println("Error while file transfer server was running");
+        } finally {
+            terminate();
+        }
+    }
+
+    /**
+     * Opens the server channel. Called by {@link #run()} if it has not been called before.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    synchronized void bind() throws IOException {
+        if (serverChannel != null)
+            return;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        running.set(true);
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting new transfers and closes the server channel.
+     */
+    public void terminate() {
+        running.set(false);
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            // irrelevant here
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            // Unbuffered streams so the request header never consumes file content
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+
+            String operation = in.readUTF();
+            String password = in.readUTF();
+            boolean authorized = passwordCheck.test(password);
+
+            switch (operation) {
+                case "UPLOAD" -> receiveUpload(channel, in, out, authorized);
+                case "DOWNLOAD" -> sendDownload(channel, in, out, authorized);
+                default -> out.writeUTF("ERROR:Unknown operation");
+            }
+        } catch (IOException e) {
+            System.out.println("Error during file transfer");
+        }
+    }
+
+    /**
+     * Streams the chunks of an upload into a temporary file and commits it to the blob store.
+     * Each chunk is moved from the socket to the file with {@link FileChannel#transferFrom}.
+     */
+    private void receiveUpload(SocketChannel channel, DataInputStream in, DataOutputStream out,
+                               boolean authorized) throws IOException {
+        String fileName = in.readUTF();
+        if (!authorized) {
+            out.writeUTF("ERROR:Invalid credentials");
+            return;
+        }
+
+        Path uploadFile = blobStore.createUploadFile();
+        boolean committed = false;
+        try (FileChannel file = FileChannel.open(uploadFile, StandardOpenOption.WRITE)) {
+            long size = 0;
+            int chunk;
+            while ((chunk = in.readInt()) != 0) {
+                if (chunk < 0) {
+                    out.writeUTF("ERROR:Invalid chunk");
+                    return;
+                }
+                if (chunk > MAX_CHUNK_SIZE || size + chunk > MAX_FILE_SIZE) {
+                    out.writeUTF("ERROR:File too large");
+                    return;
+                }
+                long end = size + chunk;
+                while (size < end) {
+                    long transferred = file.transferFrom(channel, size, end - size);
+                    if (transferred <= 0)
+                        throw new EOFException("Upload interrupted");
+                    size += transferred;
+                }
+            }
+            file.force(false);
+            String id = blobStore.commit(uploadFile);
+            committed = true;
+            System.out.println("Stored attachment " + fileName + " (" + size + " bytes) as " + id);
+            out.writeUTF("OK:" + id);
+        } finally {
+            if (!committed)
+                Files.deleteIfExists(uploadFile);
+        }
+    }
+
+    /**
+     * Sends a stored attachment with zero-copy {@link FileChannel#transferTo}.
+     */
+    private void sendDownload(SocketChannel channel, DataInputStream in, DataOutputStream out,
+                              boolean authorized) throws IOException {
+        String id = in.readUTF();
+        Path file = authorized ? blobStore.resolve(id) : null;
+        if (file == null) {
+            out.writeLong(-1);
+            return;
+        }
+
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            out.writeLong(size);
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, channel);
+            }
+        }
+    }
+}
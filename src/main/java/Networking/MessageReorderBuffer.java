@@ -0,0 +1,135 @@
+package Networking;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MessageReorderBuffer restores the server order of broadcast messages on the client side.
+ * The server fans out broadcasts in parallel, so two messages can arrive in the wrong order.
+ * Messages are held back until every earlier sequence number has been delivered,
+ * repeated sequence numbers are dropped and missing sequence numbers are reported as gaps.
+ * Each connection has its own buffer, started from the sequence number sent at login.
+ */
+class MessageReorderBuffer {
+
+    /**
+     * Receives messages in sequence order once they have been released by the buffer.
+     */
+    interface Delivery {
+        void deliver(long sequence, long timestamp, String message);
+    }
+
+    /**
+     * Receives the range of sequence numbers that were skipped because they never arrived.
+     */
+    interface GapHandler {
+        void onGap(long fromSequence, long toSequence);
+    }
+
+    // How many messages may wait for a missing one before it is considered lost
+    static final int MAX_PENDING = 64;
+    // How long a message may wait for a missing one before it is considered lost
+    static final long MAX_WAIT_MILLIS = 2000;
+
+    private final TreeMap<Long, Pending> pending = new TreeMap<>();
+    private final Delivery delivery;
+    private final GapHandler gapHandler;
+    // Next sequence number to deliver, 0 until the server has sent the sequence number at login
+    private long expected = 0;
+
+    private record Pending(long timestamp, String message, long receivedAt) {}
+
+    MessageReorderBuffer(Delivery delivery, GapHandler gapHandler) {
+        this.delivery = delivery;
+        this.gapHandler = gapHandler;
+    }
+
+    /**
+     * Starts delivering messages numbered above the given sequence number. The server sends it
+     * at login; every broadcast numbered above it is guaranteed to reach this client, earlier
+     * ones may or may not have, so they are dropped. Messages received before are held back.
+     *
+     * @param lastSequence the last sequence number before this client joined
+     */
+    synchronized void start(long lastSequence) {
+        expected = lastSequence + 1;
+        pending.headMap(expected).clear();
+        drain();
+    }
+
+    /**
+     * Adds a received message to the buffer and delivers every message that is now in order.
+     * If the oldest held back message has waited too long, or too many messages are held back,
+     * the missing sequence numbers are reported as a gap and skipped.
+     * Until {@link #start(long)} has been called, messages are only held back.
+     *
+     * @param sequence  the server sequence number of the message
+     * @param timestamp the server timestamp of the message
+     * @param message   the message text
+     */
+    void add(long sequence, long timestamp, String message) {
+        add(sequence, timestamp, message, System.currentTimeMillis());
+    }
+
+    synchronized void add(long sequence, long timestamp, String message, long now) {
+        if (sequence < expected || pending.containsKey(sequence))
+            return; // duplicate
+
+        pending.put(sequence, new Pending(timestamp, message, now));
+        if (expected == 0) {
+            // not started yet, the oldest messages are the ones most likely sent before joining
+            if (pending.size() > MAX_PENDING)
+                pending.pollFirstEntry();
+            return;
+        }
+        drain();
+        skipGaps(now);
+    }
+
+    /**
+     * Releases messages that have waited longer than {@link #MAX_WAIT_MILLIS} for a missing one.
+     * Called periodically by the client, so held back messages are delivered even if no further
+     * message arrives.
+     */
+    void flushExpired() {
+        flushExpired(System.currentTimeMillis());
+    }
+
+    synchronized void flushExpired(long now) {
+        if (expected != 0)
+            skipGaps(now);
+    }
+
+    private void skipGaps(long now) {
+        while (!pending.isEmpty()
+                && (pending.size() > MAX_PENDING || now - oldestWaiting() > MAX_WAIT_MILLIS)) {
+            long next = pending.firstKey();
+            if (gapHandler != null)
+                gapHandler.onGap(expected, next - 1);
+            expected = next;
+            drain();
+        }
+    }
+
+    private void drain() {
+        Pending next;
+        while ((next = pending.remove(expected)) != null) {
+            delivery.deliver(expected, next.timestamp(), next.message());
+            expected++;
+        }
+    }
+
+    private long oldestWaiting() {
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<Long, Pending> entry : pending.entrySet())
+            oldest = Math.min(oldest, entry.getValue().receivedAt());
+        return oldest;
+    }
+
+    /**
+     * @return the next sequence number the buffer is waiting for, 0 if not started yet
+     */
+    synchronized long getExpected() {
+        return expected;
+    }
+}
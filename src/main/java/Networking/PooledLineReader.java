@@ -0,0 +1,158 @@
+package Networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * PooledLineReader reads text lines from a socket channel without keeping a buffer per connection.
+ * While waiting for data it only holds a single byte. Once data arrives, a byte buffer and a char
+ * buffer are borrowed from the {@link BufferPool} and only the bytes that have already arrived are
+ * decoded directly between the pooled buffers. Both are returned before the reader blocks again,
+ * an unfinished line is kept as chars in {@link #partial} and an incomplete multibyte character
+ * as a few bytes in {@link #leftover}.
+ */
+class PooledLineReader {
+
+    private final SocketChannel channel;
+    private final InputStream input;
+    private final BufferPool pool;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer probe = ByteBuffer.allocate(1);
+    // Complete lines decoded by the last read, handed out one by one
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    // Start of a line whose end has not arrived yet
+    private StringBuilder partial;
+    // Bytes of a character split across two reads
+    private byte[] leftover = new byte[8];
+    private int leftoverLength;
+
+    PooledLineReader(SocketChannel channel, BufferPool pool, Charset charset) throws IOException {
+        this.channel = channel;
+        // only used to ask how many bytes can be read without blocking
+        this.input = channel.socket().getInputStream();
+        this.pool = pool;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Reads the next line, without the line terminator.
+     *
+     * @return the line, or null if the connection has been closed
+     * @throws IOException if reading from the channel fails
+     */
+    String readLine() throws IOException {
+        while (lines.isEmpty()) {
+            // Block without a pooled buffer until the client sends something
+            probe.clear();
+            if (channel.read(probe) < 0)
+                return endOfStream();
+            probe.flip();
+            if (readAvailable())
+                return lines.isEmpty() ? endOfStream() : lines.poll();
+        }
+        return lines.poll();
+    }
+
+    /**
+     * Decodes the probed byte and every byte that can be read without blocking.
+     *
+     * @return true if the end of the stream has been reached
+     */
+    private boolean readAvailable() throws IOException {
+        ByteBuffer bytes = pool.acquire();
+        ByteBuffer charStorage = pool.acquire();
+        try {
+            CharBuffer chars = charStorage.asCharBuffer();
+            bytes.put(leftover, 0, leftoverLength);
+            bytes.put(probe);
+            leftoverLength = 0;
+
+            boolean endOfStream = false;
+            while (true) {
+                bytes.flip();
+                decode(bytes, chars);
+                bytes.compact();
+
+                if (!lines.isEmpty() || input.available() <= 0)
+                    break;
+                if (channel.read(bytes) < 0) {
+                    endOfStream = true;
+                    break;
+                }
+            }
+            keepLeftover(bytes);
+            return endOfStream;
+        } finally {
+            pool.release(bytes);
+            pool.release(charStorage);
+        }
+    }
+
+    private void decode(ByteBuffer bytes, CharBuffer chars) {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chars, false);
+            chars.flip();
+            splitLines(chars);
+            chars.clear();
+        } while (result.isOverflow());
+    }
+
+    private void keepLeftover(ByteBuffer bytes) {
+        bytes.flip();
+        leftoverLength = bytes.remaining();
+        if (leftoverLength > leftover.length)
+            leftover = Arrays.copyOf(leftover, leftoverLength);
+        bytes.get(leftover, 0, leftoverLength);
+    }
+
+    /**
+     * Hands out an unterminated last line once, afterwards null.
+     */
+    private String endOfStream() {
+        String last = partial == null ? null : partial.toString();
+        partial = null;
+        leftoverLength = 0;
+        return last;
+    }
+
+    /**
+     * Moves every complete line of the decoded chars to {@link #lines}, a trailing incomplete
+     * line is kept in {@link #partial}. Accepts both "\n" and "\r\n" as line terminator.
+     */
+    private void splitLines(CharBuffer chars) {
+        int start = 0;
+        int end = chars.limit();
+        for (int i = 0; i < end; i++) {
+            if (chars.get(i) != '\n')
+                continue;
+            String line;
+            if (partial != null) {
+                line = partial.append(chars, start, i).toString();
+                partial = null;
+            } else {
+                line = chars.subSequence(start, i).toString();
+            }
+            if (line.endsWith("\r"))
+                line = line.substring(0, line.length() - 1);
+            lines.add(line);
+            start = i + 1;
+        }
+        if (start < end) {
+            if (partial == null)
+                partial = new StringBuilder(end - start);
+            partial.append(chars, start, end);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * PooledLineWriter writes text lines to a socket channel by encoding them straight into a direct
+ * buffer borrowed from the {@link BufferPool}. The buffer is only held for the duration of one write.
+ * Callers have to synchronize writes themselves.
+ */
+class PooledLineWriter {
+
+    private static final CharBuffer LINE_SEPARATOR = CharBuffer.wrap(System.lineSeparator()).asReadOnlyBuffer();
+
+    private final SocketChannel channel;
+    private final BufferPool pool;
+    private final CharsetEncoder encoder;
+
+    PooledLineWriter(SocketChannel channel, BufferPool pool, Charset charset) {
+        this.channel = channel;
+        this.pool = pool;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Writes the given lines, each followed by the line separator, and sends them at once.
+     *
+     * @param lines the lines to be written
+     * @throws IOException if writing to the channel fails
+     */
+    void write(Iterable<String> lines) throws IOException {
+        ByteBuffer bytes = pool.acquire();
+        try {
+            encoder.reset();
+            for (String line : lines) {
+                encode(CharBuffer.wrap(line), bytes);
+                encode(LINE_SEPARATOR.duplicate(), bytes);
+            }
+            encode(CharBuffer.allocate(0), bytes, true);
+            while (encoder.flush(bytes).isOverflow())
+                send(bytes);
+            send(bytes);
+        } finally {
+            pool.release(bytes);
+        }
+    }
+
+    private void encode(CharBuffer chars, ByteBuffer bytes) throws IOException {
+        encode(chars, bytes, false);
+    }
+
+    private void encode(CharBuffer chars, ByteBuffer bytes, boolean endOfInput) throws IOException {
+        CoderResult result;
+        while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow())
+            send(bytes);
+        if (result.isError())
+            result.throwException();
+    }
+
+    private void send(ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+        bytes.clear();
+    }
+}
@@ -0,0 +1,233 @@
+package Networking;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PresenceTracker keeps the online member list, away status and typing indicators of all clients.
+ * Changes are not sent one by one: they are collected and published as one delta line per tick,
+ * so a fast typist or many joins cost at most one presence message per tick and client.
+ *
+ * Presence lines sent to clients have the form "PRESENCE:name=STATE,name=STATE" for deltas and
+ * "PRESENCE_SNAPSHOT:..." for the member list, which a client requests with "PRESENCE:SNAPSHOT"
+ * once it is ready to display it. The snapshot is sent in pages over several ticks,
+ * so joining a room with thousands of members does not flood the connection.
+ * States are ONLINE, AWAY, TYPING and OFFLINE.
+ */
+class PresenceTracker {
+
+    /**
+     * Sends presence lines to the connected clients.
+     */
+    interface Publisher {
+        void toAll(String line);
+
+        void toMember(String nickname, String line);
+    }
+
+    static final long TICK_MILLIS = 500;
+    // A typing indicator expires if the client does not refresh it
+    static final long TYPING_TIMEOUT_MILLIS = 3000;
+    // Upper bound for the entries in one presence line
+    static final int MAX_ENTRIES_PER_LINE = 200;
+
+    private static final class Member {
+        volatile boolean away;
+        volatile long typingUntil;
+
+        String state(long now) {
+            if (typingUntil > now)
+                return "TYPING";
+            return away ? "AWAY" : "ONLINE";
+        }
+    }
+
+    private final Publisher publisher;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    // Latest unpublished state per member, a member changing twice within a tick is sent once
+    private final Map<String, String> changes = new ConcurrentHashMap<>();
+    // Members still receiving their snapshot, with their position in the member list
+    private final Map<String, Iterator<Map.Entry<String, Member>>> snapshots = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    PresenceTracker(Server server) {
+        this(new Publisher() {
+            @Override
+            public void toAll(String line) {
+                server.sendToAll(line);
+            }
+
+            @Override
+            public void toMember(String nickname, String line) {
+                server.sendTo(nickname, line);
+            }
+        });
+    }
+
+    PresenceTracker(Publisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Starts publishing presence changes every {@link #TICK_MILLIS} milliseconds.
+     */
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> tick(System.currentTimeMillis()),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    /**
+     * Adds a logged in client to the member list.
+     *
+     * @param nickname the nickname of the client, unique among logged in clients
+     */
+    void join(String nickname) {
+        members.put(nickname, new Member());
+        changes.put(nickname, "ONLINE");
+    }
+
+    /**
+     * Removes a client from the member list.
+     *
+     * @param nickname the nickname of the client, null if it never logged in
+     */
+    void leave(String nickname) {
+        if (nickname == null)
+            return;
+        snapshots.remove(nickname);
+        if (members.remove(nickname) != null)
+            changes.put(nickname, "OFFLINE");
+    }
+
+    /**
+     * Applies a presence command sent by a client: TYPING, AWAY, ONLINE,
+     * or SNAPSHOT to schedule the paged member list for this client.
+     *
+     * @param nickname the nickname of the client sending the command
+     * @param command  the command without the "PRESENCE:" prefix
+     */
+    void update(String nickname, String command) {
+        update(nickname, command, System.currentTimeMillis());
+    }
+
+    void update(String nickname, String command, long now) {
+        Member member = members.get(nickname);
+        if (member == null)
+            return;
+        switch (command) {
+            case "SNAPSHOT" -> {
+                snapshots.put(nickname, members.entrySet().iterator());
+                return;
+            }
+            case "TYPING" -> member.typingUntil = now + TYPING_TIMEOUT_MILLIS;
+            case "AWAY" -> member.away = true;
+            case "ONLINE" -> member.away = false;
+            default -> {
+                return;
+            }
+        }
+        changes.put(nickname, member.state(now));
+    }
+
+    /**
+     * Clears the typing indicator of a client, e.g. after it sent its message.
+     *
+     * @param nickname the nickname of the client
+     */
+    void stoppedTyping(String nickname) {
+        Member member = members.get(nickname);
+        if (member != null && member.typingUntil != 0) {
+            member.typingUntil = 0;
+            changes.put(nickname, member.state(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Publishes the collected changes and the next snapshot page of every member that requested one.
+     * Called every {@link #TICK_MILLIS} milliseconds once the tracker has been started.
+     *
+     * @param now the current time in milliseconds
+     */
+    void tick(long now) {
+        try {
+            expireTyping(now);
+
+            String delta = drainChanges(changes);
+            if (delta != null)
+                publisher.toAll("PRESENCE:" + delta);
+
+            for (Map.Entry<String, Iterator<Map.Entry<String, Member>>> snapshot : snapshots.entrySet()) {
+                String page = nextPage(snapshot.getValue(), now);
+                if (!snapshot.getValue().hasNext())
+                    snapshots.remove(snapshot.getKey());
+                if (page != null)
+                    publisher.toMember(snapshot.getKey(), "PRESENCE_SNAPSHOT:" + page);
+            }
+        } catch (RuntimeException e) {
+            // keep the scheduler running
+            System.out.println("Error while publishing presence");
+        }
+    }
+
+    private void expireTyping(long now) {
+        for (Map.Entry<String, Member> entry : members.entrySet()) {
+            Member member = entry.getValue();
+            if (member.typingUntil != 0 && member.typingUntil <= now) {
+                member.typingUntil = 0;
+                changes.put(entry.getKey(), member.state(now));
+            }
+        }
+    }
+
+    /**
+     * Removes up to {@link #MAX_ENTRIES_PER_LINE} changes and joins them into one delta line.
+     * A change replaced while draining stays queued, so it is published with the next tick.
+     *
+     * @param changes the unpublished state per member
+     * @return the delta line, null if there are no changes
+     */
+    static String drainChanges(Map<String, String> changes) {
+        StringBuilder delta = new StringBuilder();
+        int count = 0;
+        Iterator<Map.Entry<String, String>> iterator = changes.entrySet().iterator();
+        while (iterator.hasNext() && count < MAX_ENTRIES_PER_LINE) {
+            Map.Entry<String, String> change = iterator.next();
+            // a state changed in the meantime stays queued for the next tick
+            changes.remove(change.getKey(), change.getValue());
+            append(delta, change.getKey(), change.getValue());
+            count++;
+        }
+        return count == 0 ? null : delta.toString();
+    }
+
+    private String nextPage(Iterator<Map.Entry<String, Member>> iterator, long now) {
+        StringBuilder page = new StringBuilder();
+        int count = 0;
+        while (iterator.hasNext() && count < MAX_ENTRIES_PER_LINE) {
+            Map.Entry<String, Member> entry = iterator.next();
+            append(page, entry.getKey(), entry.getValue().state(now));
+            count++;
+        }
+        return count == 0 ? null : page.toString();
+    }
+
+    private static void append(StringBuilder line, String name, String state) {
+        if (!line.isEmpty())
+            line.append(',');
+        line.append(name).append('=').append(state);
+    }
+}
@@ -1,13 +1,18 @@
 package Networking;
 
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The Server class implements a basic multi-threaded server capable of handling multiple client
@@ -17,9 +22,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class Server implements Runnable {
 
-    private ServerSocket serverSocket;
-    private final List<ClientHandler> clients = new ArrayList<>();
+    private ServerSocketChannel serverChannel;
+    // Direct I/O buffers shared by all connections, borrowed only while reading or writing
+    private final BufferPool bufferPool = new BufferPool(8 * 1024, 256);
+    private final List<ClientHandler> clients = new CopyOnWriteArrayList<>();
+    // Nicknames of logged in clients, presence state is keyed by nickname so they have to be unique
+    private final Set<String> nicknames = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private FileTransferServer fileTransferServer;
+    private final PresenceTracker presence = new PresenceTracker(this);
+    // Server wide sequence, every broadcast gets the next number
+    private final AtomicLong sequence = new AtomicLong(0);
 
     private static String password;
     static int MAX_CLIENTS;
@@ -33,17 +46,22 @@ public class Server implements Runnable {
     @Override
     public void run() {
         try {
-            serverSocket = new ServerSocket(1234);
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(1234));
             System.out.println("Server started");
-            System.out.println("Listening for clients on port " + serverSocket.getLocalPort());
+            System.out.println("Listening for clients on port " + serverChannel.socket().getLocalPort());
 
             running.set(true);
+            startFileTransfer();
+            presence.start();
 
             while (running.get()) {
-                Socket clientSocket = serverSocket.accept();
+                SocketChannel clientChannel = serverChannel.accept();
 
-                ClientHandler clientHandler = new ClientHandler(clientSocket, this);
+                ClientHandler clientHandler = new ClientHandler(clientChannel, this);
                 clients.add(clientHandler);
+                // Every broadcast numbered above this one is sent to the new client
+                clientHandler.setJoinSequence(sequence.get());
                 System.out.println("New client connected");
                 System.out.println("Client Connected");
                 System.out.println("Client count: " + clients.size());
@@ -61,38 +79,110 @@ public class Server implements Runnable {
     }
 
     /**
-     * Broadcasts a message to all connected clients, ensuring synchronized access
-     * to the collection of clients. The sender of the message is not excluded
-     * and will also receive the broadcasted message.
+     * Starts the {@link FileTransferServer} on its own port, so attachments are streamed
+     * outside the chat connections. Attachments are stored in the "blobs" directory.
+     */
+    private void startFileTransfer() {
+        try {
+            fileTransferServer = new FileTransferServer(FileTransferClient.TRANSFER_PORT,
+                    new BlobStore(Path.of("blobs")), this::passwordValid);
+            Thread thread = new Thread(fileTransferServer);
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            System.out.println("File transfer unavailable, could not create blob store");
+        }
+    }
+
+    /**
+     * Broadcasts a message to all connected clients. Each broadcast is stamped with the next
+     * server sequence number and the current server time, so clients can restore the order
+     * and detect gaps. No global lock is held: concurrent broadcasts fan out in parallel and
+     * may reach a client out of order, which the client reorders by sequence number.
+     * The sender of the message is not excluded and will also receive the broadcasted message.
      *
      * @param message the message to be broadcasted to all connected clients
      * @param sender  the client sending the message, typically the origin
      *                of the broadcast
      */
-    public synchronized void broadcast(String message, ClientHandler sender) {
-        System.out.println("Broadcasting message: " + message+ " inside the Server class");
+    public void broadcast(String message, ClientHandler sender) {
+        long seq = sequence.incrementAndGet();
+        long timestamp = System.currentTimeMillis();
+        System.out.println("Broadcasting message #" + seq + ": " + message + " inside the Server class");
 
         for (ClientHandler client : clients) {
-                client.sendMessage(message);
+            client.sendMessage(seq, timestamp, message);
         }
+    }
+
+    /**
+     * Sends a single control line, which is not part of the chat history, to all connected clients.
+     *
+     * @param line the control line to be sent
+     */
+    void sendToAll(String line) {
+        for (ClientHandler client : clients) {
+            client.sendControl(line);
+        }
+    }
+
+    /**
+     * Sends a control line to the logged in client with the given nickname.
+     *
+     * @param nickname the nickname of the receiving client
+     * @param line     the control line to be sent
+     */
+    void sendTo(String nickname, String line) {
+        for (ClientHandler client : clients) {
+            if (nickname.equals(client.nickname)) {
+                client.sendControl(line);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reserves a nickname for a logging in client. The reservation is released in {@link #removeClient(ClientHandler)}.
+     *
+     * @param nickname the nickname to be reserved
+     * @return true if the nickname was free, false if another client is using it
+     */
+    boolean reserveNickname(String nickname) {
+        return nicknames.add(nickname);
+    }
+
+    /**
+     * Retrieves the pool of direct buffers used for client I/O, which also exposes
+     * hit/miss counts and the direct memory footprint.
+     *
+     * @return the server's buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
 
+    PresenceTracker getPresence() {
+        return presence;
     }
 
     /**
      * Removes a specified client from the server's list of connected clients.
-     * This method ensures synchronized access to the client list to avoid
-     * concurrent modification issues. It logs the disconnection event and the
-     * updated count of currently connected clients.
+     * The client list is copy-on-write, so this does not block concurrent broadcasts.
+     * It logs the disconnection event and the updated count of currently connected clients.
      *
      * @param clientHandler the client handler instance representing the client
      *                      to be removed from the server's list of connected clients
      */
-    public synchronized void removeClient(ClientHandler clientHandler) {
+    public void removeClient(ClientHandler clientHandler) {
         clients.remove(clientHandler);
+        presence.leave(clientHandler.nickname);
+        if (clientHandler.nickname != null)
+            nicknames.remove(clientHandler.nickname);
         broadcast("Client " + clientHandler.nickname + " disconnected", clientHandler);
         System.out.println("Client " + clientHandler.nickname + " disconnected");
         System.out.println("Client disconnected");
         System.out.println("Client count: " + clients.size());
+        System.out.println(bufferPool);
     }
 
 
@@ -104,7 +194,9 @@ public class Server implements Runnable {
      */
     private void terminate() {
         try {
-            if (serverSocket != null) serverSocket.close();
+            if (serverChannel != null) serverChannel.close();
+            if (fileTransferServer != null) fileTransferServer.terminate();
+            presence.stop();
             for (ClientHandler client : clients) {
                 client.sendMessage("Server is shutting down");
             }
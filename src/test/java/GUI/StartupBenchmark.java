@@ -0,0 +1,77 @@
+package GUI;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures client startup of the jlink image with and without class data sharing.
+ * Each run starts the client with "chattingapp.exitAfterStartup", which prints the time to the
+ * first frame of the login screen and to the rendered chat window and then exits.
+ *
+ * Build the image first with: mvn -Pcds package
+ * Run with: java GUI.StartupBenchmark [imageDirectory] [runs]
+ */
+public class StartupBenchmark {
+
+    private static final Pattern FIRST_FRAME = Pattern.compile("Startup: first frame after (\\d+) ms");
+    private static final Pattern CHAT_WINDOW = Pattern.compile("Startup: chat window after (\\d+) ms");
+
+    public static void main(String[] args) throws Exception {
+        Path image = Path.of(args.length > 0 ? args[0] : "target/app");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path java = image.resolve("bin").resolve("java");
+        if (!Files.isExecutable(java))
+            throw new IllegalStateException("No jlink image found at " + image + ", run mvn -Pcds package first");
+
+        measure(java, "-Xshare:off", runs);
+        measure(java, "-Xshare:auto", runs);
+    }
+
+    private static void measure(Path java, String shareMode, int runs) throws IOException, InterruptedException {
+        List<Long> firstFrame = new ArrayList<>();
+        List<Long> chatWindow = new ArrayList<>();
+
+        // first run only warms up the file system cache
+        for (int run = 0; run <= runs; run++) {
+            Process process = new ProcessBuilder(java.toString(), shareMode,
+                    "-Dchattingapp.exitAfterStartup=true",
+                    "-m", "com.example.chattingapp/GUI.ChattingApp")
+                    .redirectErrorStream(true)
+                    .start();
+
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (run == 0)
+                        continue;
+                    Matcher matcher = FIRST_FRAME.matcher(line);
+                    if (matcher.find())
+                        firstFrame.add(Long.parseLong(matcher.group(1)));
+                    matcher = CHAT_WINDOW.matcher(line);
+                    if (matcher.find())
+                        chatWindow.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+            process.waitFor();
+        }
+
+        System.out.printf("%-13s first frame median %5d ms   chat window median %5d ms   (%d runs)%n",
+                shareMode, median(firstFrame), median(chatWindow), runs);
+    }
+
+    private static long median(List<Long> values) {
+        if (values.isEmpty())
+            return -1;
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+}
@@ -0,0 +1,83 @@
+package Networking;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures upload and download throughput of the {@link FileTransferServer} over loopback
+ * for large files. Run with: java Networking.FileTransferBenchmark [sizeInMB...]
+ * Defaults to 64, 256 and 512 MB files, each transferred a few times after a warm-up run.
+ */
+public class FileTransferBenchmark {
+
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        long[] sizesInMB = args.length == 0 ? new long[]{64, 256, 512} : new long[args.length];
+        for (int i = 0; i < args.length; i++)
+            sizesInMB[i] = Long.parseLong(args[i]);
+
+        Path workDir = Files.createTempDirectory("transfer-bench");
+        FileTransferServer server = new FileTransferServer(0, new BlobStore(workDir.resolve("blobs")), p -> true);
+        server.bind();
+        Thread serverThread = new Thread(server);
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        FileTransferClient client = new FileTransferClient("localhost", server.getPort(), "");
+        try {
+            for (long sizeInMB : sizesInMB) {
+                Path source = createFile(workDir.resolve("source-" + sizeInMB), sizeInMB * 1024 * 1024);
+                Path target = workDir.resolve("target-" + sizeInMB);
+
+                // warm-up
+                client.download(client.upload(source), target);
+
+                double uploadTotal = 0, downloadTotal = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    String id = client.upload(source);
+                    uploadTotal += mbPerSecond(sizeInMB, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    client.download(id, target);
+                    downloadTotal += mbPerSecond(sizeInMB, System.nanoTime() - start);
+                }
+                if (Files.size(target) != Files.size(source))
+                    throw new IllegalStateException("Downloaded file has the wrong size");
+
+                System.out.printf("%5d MB  upload %8.1f MB/s  download %8.1f MB/s%n",
+                        sizeInMB, uploadTotal / RUNS, downloadTotal / RUNS);
+                Files.delete(source);
+            }
+        } finally {
+            server.terminate();
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static Path createFile(Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            byte[] block = new byte[1024 * 1024];
+            for (int i = 0; i < block.length; i++)
+                block[i] = (byte) i;
+            for (long written = 0; written < size; written += block.length)
+                raf.write(block, 0, (int) Math.min(block.length, size - written));
+        }
+        return file;
+    }
+
+    private static double mbPerSecond(long sizeInMB, long nanos) {
+        return sizeInMB / (nanos / 1_000_000_000.0);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTransferClientTest {
+
+    @Test
+    void refusesFilesAboveTheLimitBeforeConnecting() throws IOException {
+        Path file = Files.createTempFile("too-large", ".bin");
+        int unusedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            unusedPort = socket.getLocalPort();
+        }
+        try {
+            // sparse file, takes no real disk space
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(FileTransferServer.MAX_FILE_SIZE + 1);
+            }
+
+            FileTransferClient client = new FileTransferClient("localhost", unusedPort, "");
+            IOException e = assertThrows(IOException.class, () -> client.upload(file));
+            assertTrue(e.getMessage().startsWith("File too large"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void parsesReferenceProducedForUpload() {
+        String id = "123e4567-e89b-12d3-a456-426614174000";
+        String message = "Bob: " + FileTransferClient.reference("notes.txt", 4096, id);
+
+        assertEquals(id, FileTransferClient.parseReference(message));
+        assertNull(FileTransferClient.parseReference("Bob: no attachment here"));
+    }
+}
@@ -0,0 +1,80 @@
+package Networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTransferServerTest {
+
+    private Path blobs;
+    private FileTransferServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        blobs = Files.createTempDirectory("transfer-test").resolve("blobs");
+        server = new FileTransferServer(0, new BlobStore(blobs), p -> true);
+        server.bind();
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.terminate();
+    }
+
+    @Test
+    void storesUploadEndedByEmptyChunk() throws IOException {
+        String response = upload(4, 0);
+
+        assertTrue(response.startsWith("OK:"));
+        assertNotNull(new BlobStore(blobs).resolve(response.substring(3)));
+    }
+
+    @Test
+    void refusesNegativeChunkLengthWithoutStoringTheUpload() throws IOException {
+        String response = upload(4, -1);
+
+        assertEquals("ERROR:Invalid chunk", response);
+        try (Stream<Path> files = Files.list(blobs)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Uploads one chunk of the given length followed by a raw chunk length ending the upload.
+     *
+     * @return the server's answer, read once the server has closed the connection
+     */
+    private String upload(int length, int lastChunkLength) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()))) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+
+            out.writeUTF("UPLOAD");
+            out.writeUTF("");
+            out.writeUTF("test.bin");
+            out.writeInt(length);
+            out.write(new byte[length]);
+            out.writeInt(lastChunkLength);
+
+            String response = in.readUTF();
+            // the upload file is cleaned up before the server closes the connection
+            assertEquals(-1, in.read());
+            return response;
+        }
+    }
+}
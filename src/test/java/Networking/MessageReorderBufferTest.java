@@ -0,0 +1,100 @@
+package Networking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageReorderBufferTest {
+
+    private final List<Long> delivered = new ArrayList<>();
+    private final List<String> gaps = new ArrayList<>();
+    private MessageReorderBuffer buffer;
+
+    @BeforeEach
+    void createBuffer() {
+        buffer = new MessageReorderBuffer(
+                (sequence, timestamp, message) -> delivered.add(sequence),
+                (from, to) -> gaps.add(from + "-" + to));
+        buffer.start(0);
+    }
+
+    @Test
+    void deliversMessagesInSequenceOrder() {
+        buffer.add(1, 0, "a", 0);
+        buffer.add(3, 0, "c", 0);
+        buffer.add(4, 0, "d", 0);
+        assertEquals(List.of(1L), delivered);
+
+        buffer.add(2, 0, "b", 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L), delivered);
+        assertTrue(gaps.isEmpty());
+        assertEquals(5, buffer.getExpected());
+    }
+
+    @Test
+    void dropsDuplicates() {
+        buffer.add(1, 0, "a", 0);
+        buffer.add(3, 0, "c", 0);
+        buffer.add(3, 0, "c", 0);
+        buffer.add(2, 0, "b", 0);
+        buffer.add(1, 0, "a", 0);
+        buffer.add(2, 0, "b", 0);
+
+        assertEquals(List.of(1L, 2L, 3L), delivered);
+    }
+
+    @Test
+    void reportsGapWhenTooManyMessagesAreHeldBack() {
+        buffer.add(1, 0, "a", 0);
+        for (long sequence = 3; sequence <= MessageReorderBuffer.MAX_PENDING + 3; sequence++)
+            buffer.add(sequence, 0, "m", 0);
+
+        assertEquals(List.of("2-2"), gaps);
+        assertEquals(MessageReorderBuffer.MAX_PENDING + 2, delivered.size());
+        assertEquals(MessageReorderBuffer.MAX_PENDING + 4, buffer.getExpected());
+    }
+
+    @Test
+    void flushesHeldBackMessagesAfterTimeoutWithoutFurtherMessages() {
+        buffer.add(1, 0, "a", 0);
+        buffer.add(4, 0, "d", 100);
+        buffer.add(5, 0, "e", 100);
+
+        buffer.flushExpired(100 + MessageReorderBuffer.MAX_WAIT_MILLIS);
+        assertEquals(List.of(1L), delivered);
+
+        buffer.flushExpired(101 + MessageReorderBuffer.MAX_WAIT_MILLIS);
+        assertEquals(List.of(1L, 4L, 5L), delivered);
+        assertEquals(List.of("2-3"), gaps);
+
+        // a late arrival of a skipped message is treated as duplicate
+        buffer.add(2, 0, "b", 3000);
+        assertEquals(List.of(1L, 4L, 5L), delivered);
+    }
+
+    @Test
+    void holdsMessagesBackUntilStartedAndDropsThoseUpToTheJoinSequence() {
+        MessageReorderBuffer joining = new MessageReorderBuffer(
+                (sequence, timestamp, message) -> delivered.add(sequence),
+                (from, to) -> gaps.add(from + "-" + to));
+        joining.add(12, 0, "l", 0);
+        joining.add(10, 0, "j", 0);
+        joining.add(11, 0, "k", 0);
+        joining.flushExpired(10 * MessageReorderBuffer.MAX_WAIT_MILLIS);
+        assertTrue(delivered.isEmpty());
+
+        joining.start(10);
+        assertEquals(List.of(11L, 12L), delivered);
+        assertTrue(gaps.isEmpty());
+
+        // the first message above the join sequence is awaited, not skipped
+        joining.add(14, 0, "n", 0);
+        joining.add(13, 0, "m", 0);
+        assertEquals(List.of(11L, 12L, 13L, 14L), delivered);
+        assertTrue(gaps.isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package Networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledLineReaderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private SocketChannel sender;
+    private SocketChannel receiver;
+    private BufferPool pool;
+    private PooledLineReader reader;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("localhost", 0));
+            sender = SocketChannel.open(server.getLocalAddress());
+            receiver = server.accept();
+        }
+        pool = new BufferPool(8 * 1024, 4);
+        reader = new PooledLineReader(receiver, pool, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        sender.close();
+        receiver.close();
+    }
+
+    private void send(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            sender.write(buffer);
+    }
+
+    private void send(String text) throws IOException {
+        send(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void returnsCompleteLineWithoutWaitingForTheNextOne() throws Exception {
+        send("hello\nwor");
+
+        assertEquals("hello", assertTimeoutPreemptively(TIMEOUT, () -> reader.readLine()));
+        assertEquals(0, pool.getInUse());
+
+        send("ld\n");
+        assertEquals("world", assertTimeoutPreemptively(TIMEOUT, () -> reader.readLine()));
+    }
+
+    @Test
+    void holdsNoBuffersWhileWaitingForTheRestOfALine() throws Exception {
+        send("half a li");
+        CompletableFuture<String> line = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        assertFalse(line.isDone());
+        assertEquals(0, pool.getInUse());
+
+        send("ne\n");
+        assertEquals("half a line", line.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void decodesMultibyteCharacterSplitAcrossReads() throws Exception {
+        byte[] bytes = "ä€\n".getBytes(StandardCharsets.UTF_8);
+        // ends after the first byte of the euro sign
+        send(Arrays.copyOfRange(bytes, 0, 3));
+        CompletableFuture<String> line = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        send(Arrays.copyOfRange(bytes, 3, bytes.length));
+        assertEquals("ä€", line.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void readsLinesLongerThanThePooledBuffers() throws Exception {
+        String longLine = "x€".repeat(10_000);
+        CompletableFuture<Void> sending = CompletableFuture.runAsync(() -> {
+            try {
+                send(longLine + "\nshort\n");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals(longLine, assertTimeoutPreemptively(TIMEOUT, () -> reader.readLine()));
+        assertEquals("short", assertTimeoutPreemptively(TIMEOUT, () -> reader.readLine()));
+        sending.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(0, pool.getInUse());
+    }
+
+    @Test
+    void acceptsCarriageReturnAndUnterminatedLastLine() throws Exception {
+        send("first\r\nsecond\nlast");
+        sender.shutdownOutput();
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertEquals("first", reader.readLine());
+            assertEquals("second", reader.readLine());
+            assertEquals("last", reader.readLine());
+            assertNull(reader.readLine());
+        });
+    }
+}
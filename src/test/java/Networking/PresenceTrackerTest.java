@@ -0,0 +1,149 @@
+package Networking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresenceTrackerTest {
+
+    private final List<String> toAll = new ArrayList<>();
+    private final List<String> toMember = new ArrayList<>();
+    private PresenceTracker tracker;
+
+    @BeforeEach
+    void createTracker() {
+        tracker = new PresenceTracker(new PresenceTracker.Publisher() {
+            @Override
+            public void toAll(String line) {
+                toAll.add(line);
+            }
+
+            @Override
+            public void toMember(String nickname, String line) {
+                toMember.add(nickname + ">" + line);
+            }
+        });
+    }
+
+    @Test
+    void coalescesChangesWithinATick() {
+        tracker.join("Alice");
+        for (int i = 0; i < 20; i++)
+            tracker.update("Alice", "TYPING", 0);
+        tracker.update("Alice", "AWAY", 0);
+        tracker.join("Bob");
+
+        tracker.tick(100);
+        assertEquals(1, toAll.size());
+        assertEquals(Map.of("Alice", "TYPING", "Bob", "ONLINE"), parse(toAll.get(0), "PRESENCE:"));
+
+        tracker.tick(200);
+        assertEquals(1, toAll.size());
+    }
+
+    @Test
+    void keepsAChangeQueuedThatWasReplacedWhileDraining() {
+        // replaces the state right before the drained change is removed, as a concurrent update would
+        Map<String, String> changes = new ConcurrentHashMap<>() {
+            @Override
+            public boolean remove(Object key, Object value) {
+                put((String) key, "AWAY");
+                return super.remove(key, value);
+            }
+
+            @Override
+            public String remove(Object key) {
+                put((String) key, "AWAY");
+                return super.remove(key);
+            }
+        };
+        changes.put("Alice", "ONLINE");
+
+        assertEquals("Alice=ONLINE", PresenceTracker.drainChanges(changes));
+        assertEquals(Map.of("Alice", "AWAY"), changes);
+    }
+
+    @Test
+    void splitsDeltasAboveTheLineLimitOverSeveralTicks() {
+        int members = PresenceTracker.MAX_ENTRIES_PER_LINE + 50;
+        for (int i = 0; i < members; i++)
+            tracker.join("user" + i);
+
+        tracker.tick(0);
+        assertEquals(PresenceTracker.MAX_ENTRIES_PER_LINE, parse(toAll.get(0), "PRESENCE:").size());
+
+        tracker.tick(500);
+        assertEquals(50, parse(toAll.get(1), "PRESENCE:").size());
+
+        tracker.tick(1000);
+        assertEquals(2, toAll.size());
+    }
+
+    @Test
+    void sendsTheSnapshotInPagesToTheRequestingMemberOnly() {
+        int members = 2 * PresenceTracker.MAX_ENTRIES_PER_LINE + 1;
+        for (int i = 0; i < members; i++)
+            tracker.join("user" + i);
+        tracker.update("user0", "AWAY", 0);
+        tracker.update("user0", "SNAPSHOT", 0);
+
+        Map<String, String> snapshot = new HashMap<>();
+        for (int tick = 0; tick < 5; tick++)
+            tracker.tick(tick * PresenceTracker.TICK_MILLIS);
+
+        assertEquals(3, toMember.size());
+        for (String page : toMember) {
+            assertTrue(page.startsWith("user0>PRESENCE_SNAPSHOT:"));
+            Map<String, String> entries = parse(page, "user0>PRESENCE_SNAPSHOT:");
+            assertTrue(entries.size() <= PresenceTracker.MAX_ENTRIES_PER_LINE);
+            snapshot.putAll(entries);
+        }
+        assertEquals(members, snapshot.size());
+        assertEquals("AWAY", snapshot.get("user0"));
+        assertEquals("ONLINE", snapshot.get("user" + (members - 1)));
+    }
+
+    @Test
+    void ignoresCommandsOfMembersThatLeft() {
+        tracker.join("Alice");
+        tracker.update("Alice", "SNAPSHOT", 0);
+        tracker.leave("Alice");
+        tracker.update("Alice", "TYPING", 0);
+        tracker.leave(null);
+
+        tracker.tick(0);
+        assertEquals(List.of("PRESENCE:Alice=OFFLINE"), toAll);
+        assertTrue(toMember.isEmpty());
+    }
+
+    @Test
+    void expiresTypingIndicatorsThatAreNotRefreshed() {
+        tracker.join("Alice");
+        tracker.update("Alice", "TYPING", 0);
+        tracker.tick(0);
+        assertEquals(Map.of("Alice", "TYPING"), parse(toAll.get(0), "PRESENCE:"));
+
+        tracker.tick(PresenceTracker.TYPING_TIMEOUT_MILLIS - 1);
+        assertEquals(1, toAll.size());
+
+        tracker.tick(PresenceTracker.TYPING_TIMEOUT_MILLIS);
+        assertEquals(List.of("PRESENCE:Alice=TYPING", "PRESENCE:Alice=ONLINE"), toAll);
+    }
+
+    private static Map<String, String> parse(String line, String prefix) {
+        assertTrue(line.startsWith(prefix));
+        Map<String, String> entries = new HashMap<>();
+        for (String entry : line.substring(prefix.length()).split(",")) {
+            String[] parts = entry.split("=");
+            entries.put(parts[0], parts[1]);
+        }
+        return entries;
+    }
+}